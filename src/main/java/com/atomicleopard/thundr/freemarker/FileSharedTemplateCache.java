@@ -0,0 +1,131 @@
+/*
+ * This file is a part of thundr-contrib-freemarker, a software library from Atomic Leopard.
+ *
+ * Copyright (C) 2016 Atomic Leopard Pty Ltd, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.freemarker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import jodd.util.StringPool;
+
+/**
+ * A {@link SharedTemplateCache} which stores each entry as a file in a directory. Pointing several instances at
+ * the same directory gives a simple stand in for an external shared store when testing.
+ * 
+ * Each file holds the expiry time followed by a newline and the value. Expired entries are removed when next read.
+ */
+public class FileSharedTemplateCache implements SharedTemplateCache {
+	private static final Charset UTF8 = Charset.forName(StringPool.UTF_8);
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	private final Path directory;
+
+	public FileSharedTemplateCache(File directory) {
+		this.directory = directory.toPath();
+		try {
+			Files.createDirectories(this.directory);
+		} catch (IOException e) {
+			throw new SharedTemplateCacheException(e, "Failed to create shared template cache directory '%s': %s", directory, e.getMessage());
+		}
+	}
+
+	@Override
+	public String get(String key) {
+		try {
+			Path file = file(key);
+			String entry = new String(Files.readAllBytes(file), UTF8);
+			int separator = entry.indexOf('\n');
+			long expiresAt = separator < 0 ? Long.MIN_VALUE : parseLong(entry.substring(0, separator));
+			if (currentTimeMillis() >= expiresAt) {
+				Files.deleteIfExists(file);
+				return null;
+			}
+			return entry.substring(separator + 1);
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			throw new SharedTemplateCacheException(e, "Failed to read shared template cache entry '%s': %s", key, e.getMessage());
+		}
+	}
+
+	@Override
+	public void put(String key, String value, long ttlMillis) {
+		long now = currentTimeMillis();
+		long expiresAt = ttlMillis <= 0 || now > Long.MAX_VALUE - ttlMillis ? Long.MAX_VALUE : now + ttlMillis;
+		try {
+			Path file = file(key);
+			Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+			Files.write(temp, (expiresAt + "\n" + value).getBytes(UTF8));
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new SharedTemplateCacheException(e, "Failed to write shared template cache entry '%s': %s", key, e.getMessage());
+		}
+	}
+
+	@Override
+	public void remove(String key) {
+		try {
+			Files.deleteIfExists(file(key));
+		} catch (IOException e) {
+			throw new SharedTemplateCacheException(e, "Failed to remove shared template cache entry '%s': %s", key, e.getMessage());
+		}
+	}
+
+	protected long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	public File getDirectory() {
+		return directory.toFile();
+	}
+
+	private static long parseLong(String value) {
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			return Long.MIN_VALUE;
+		}
+	}
+
+	/**
+	 * Keys may contain characters which are not valid in file names, so entries are named by a hash of the key.
+	 */
+	private Path file(String key) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(UTF8));
+			char[] name = new char[digest.length * 2];
+			for (int i = 0; i < digest.length; i++) {
+				name[i * 2] = HEX[(digest[i] >> 4) & 0xf];
+				name[i * 2 + 1] = HEX[digest[i] & 0xf];
+			}
+			return directory.resolve(new String(name));
+		} catch (NoSuchAlgorithmException e) {
+			throw new SharedTemplateCacheException(e, "Failed to hash shared template cache key '%s': %s", key, e.getMessage());
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s (%s)", this.getClass().getSimpleName(), directory);
+	}
+}
@@ -22,6 +22,8 @@ import java.util.List;
 
 import javax.servlet.ServletContext;
 
+import org.apache.commons.lang3.StringUtils;
+
 import com.threewks.thundr.configuration.Environment;
 import com.threewks.thundr.injection.InjectionContext;
 import com.threewks.thundr.injection.UpdatableInjectionContext;
@@ -35,6 +37,7 @@ import freemarker.cache.MultiTemplateLoader;
 import freemarker.cache.NullCacheStorage;
 import freemarker.cache.TemplateLoader;
 import freemarker.cache.WebappTemplateLoader;
+import freemarker.log.Logger;
 import freemarker.template.Configuration;
 import freemarker.template.TemplateExceptionHandler;
 
@@ -51,8 +54,14 @@ import freemarker.template.TemplateExceptionHandler;
 	
  * </code>
  * </pre>
+ * 
+ * If a {@link SharedTemplateCache} has been injected by the time the module starts, cacheable rendered output is shared
+ * through it (outside of {@link Environment#DEV}). Template sources are also shared if the <code>freemarkerSharedCacheKeyPrefix</code>
+ * configuration property is set.
  */
 public class FreemarkerModule implements com.threewks.thundr.injection.Module {
+	private static final Logger log = Logger.getLogger("com.atomicleopard.thundr.freemarker");
+
 	@Override
 	public void requires(DependencyRegistry dependencyRegistry) {
 		dependencyRegistry.addDependency(ViewModule.class);
@@ -73,7 +82,19 @@ public class FreemarkerModule implements com.threewks.thundr.injection.Module {
 		ViewResolverRegistry viewResolverRegistry = injectionContext.get(ViewResolverRegistry.class);
 		GlobalModel globalModel = injectionContext.get(GlobalModel.class);
 		Configuration configuration = injectionContext.get(Configuration.class);
-		viewResolverRegistry.addResolver(FreemarkerView.class, createViewResolver(globalModel, configuration));
+		SharedTemplateCache sharedCache = getSharedTemplateCache(injectionContext);
+		String keyPrefix = getSharedCacheKeyPrefix(injectionContext);
+		if (sharedCache != null && keyPrefix != null) {
+			configuration.setTemplateLoader(createSharedCacheTemplateLoader(configuration, sharedCache, keyPrefix));
+		} else if (sharedCache != null) {
+			log.warn("The freemarkerSharedCacheKeyPrefix property is not set, so template sources will not be shared as template changes could not be detected. Set it to a value which changes with each deployment.");
+		}
+		FreemarkerViewResolver viewResolver = createViewResolver(globalModel, configuration);
+		if (sharedCache != null) {
+			viewResolver.setSharedCache(sharedCache);
+			viewResolver.setOutputKeyPrefix(StringUtils.defaultString(keyPrefix) + FreemarkerViewResolver.DEFAULT_OUTPUT_KEY_PREFIX);
+		}
+		viewResolverRegistry.addResolver(FreemarkerView.class, viewResolver);
 	}
 
 	protected FreemarkerViewResolver createViewResolver(GlobalModel globalModel, Configuration configuration) {
@@ -81,6 +102,31 @@ public class FreemarkerModule implements com.threewks.thundr.injection.Module {
 		return freemarkerViewResolver;
 	}
 
+	/**
+	 * Wraps the configured template loader so that template sources are shared.
+	 */
+	protected SharedCacheTemplateLoader createSharedCacheTemplateLoader(Configuration configuration, SharedTemplateCache sharedCache, String keyPrefix) {
+		return new SharedCacheTemplateLoader(configuration.getTemplateLoader(), sharedCache, configuration.getDefaultEncoding(), keyPrefix + SharedCacheTemplateLoader.DEFAULT_KEY_PREFIX);
+	}
+
+	/**
+	 * @return the <code>freemarkerSharedCacheKeyPrefix</code> configuration property, which is prepended to all shared cache keys and
+	 *         should change whenever templates change (for example by including the application version), or null if not set
+	 */
+	protected String getSharedCacheKeyPrefix(InjectionContext injectionContext) {
+		if (!injectionContext.contains(String.class, "freemarkerSharedCacheKeyPrefix")) {
+			return null;
+		}
+		return injectionContext.get(String.class, "freemarkerSharedCacheKeyPrefix");
+	}
+
+	protected SharedTemplateCache getSharedTemplateCache(InjectionContext injectionContext) {
+		if (Environment.is(Environment.DEV) || !injectionContext.contains(SharedTemplateCache.class)) {
+			return null;
+		}
+		return injectionContext.get(SharedTemplateCache.class);
+	}
+
 	@Override
 	public void stop(InjectionContext injectionContext) {
 	}
@@ -19,6 +19,7 @@ package com.atomicleopard.thundr.freemarker;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -30,6 +31,8 @@ import com.threewks.thundr.view.View;
 import jodd.util.StringPool;
 
 public class FreemarkerView extends TemplateView<FreemarkerView> implements View {
+	private String outputCacheKey;
+	private long outputCacheTtlMillis;
 
 	public FreemarkerView(String view) {
 		this(view, Collections.<String, Object> emptyMap());
@@ -47,6 +50,31 @@ public class FreemarkerView extends TemplateView<FreemarkerView> implements View
 		return completeViewName(view);
 	}
 
+	/**
+	 * Marks the rendered output of this view as cacheable in the {@link SharedTemplateCache}, if one is configured.
+	 * The key must identify everything the output depends on (for example the model values used), as a cached render
+	 * is reused for any request for the same view and key until the ttl elapses.
+	 * 
+	 * @throws IllegalArgumentException if the ttl is less than one millisecond
+	 */
+	public FreemarkerView withOutputCacheKey(String outputCacheKey, long ttl, TimeUnit unit) {
+		long ttlMillis = unit.toMillis(ttl);
+		if (ttlMillis <= 0) {
+			throw new IllegalArgumentException(String.format("An output cache ttl must be at least one millisecond, but was %s %s", ttl, unit));
+		}
+		this.outputCacheKey = outputCacheKey;
+		this.outputCacheTtlMillis = ttlMillis;
+		return this;
+	}
+
+	public String getOutputCacheKey() {
+		return outputCacheKey;
+	}
+
+	public long getOutputCacheTtlMillis() {
+		return outputCacheTtlMillis;
+	}
+
 	private String completeViewName(String view) {
 		if (!StringUtils.startsWith(view, "/")) {
 			view = "/ftl/" + view;
@@ -19,6 +19,8 @@ package com.atomicleopard.thundr.freemarker;
 
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
 
 import com.threewks.thundr.request.Request;
 import com.threewks.thundr.request.Response;
@@ -28,17 +30,30 @@ import com.threewks.thundr.view.Model;
 import com.threewks.thundr.view.ViewResolutionException;
 import com.threewks.thundr.view.ViewResolver;
 
+import freemarker.log.Logger;
 import freemarker.template.Configuration;
 import freemarker.template.Template;
 import freemarker.template.TemplateException;
 
 public class FreemarkerViewResolver implements ViewResolver<FreemarkerView> {
+	public static final String DEFAULT_OUTPUT_KEY_PREFIX = "freemarker-output:";
+	private static final Logger log = Logger.getLogger("com.atomicleopard.thundr.freemarker");
 	private Configuration configuration;
 	private GlobalModel globalModel;
+	private SharedTemplateCache sharedCache;
+	private String outputKeyPrefix = DEFAULT_OUTPUT_KEY_PREFIX;
 
 	public FreemarkerViewResolver(Configuration configuration, GlobalModel globalModel) {
+		this(configuration, globalModel, null);
+	}
+
+	/**
+	 * @param sharedCache if not null, the rendered output of views with an output cache key is stored in and served from this cache
+	 */
+	public FreemarkerViewResolver(Configuration configuration, GlobalModel globalModel, SharedTemplateCache sharedCache) {
 		this.configuration = configuration;
 		this.globalModel = globalModel;
+		this.sharedCache = sharedCache;
 	}
 
 	public GlobalModel getGlobalModel() {
@@ -49,19 +64,85 @@ public class FreemarkerViewResolver implements ViewResolver<FreemarkerView> {
 		return configuration;
 	}
 
+	public SharedTemplateCache getSharedCache() {
+		return sharedCache;
+	}
+
+	/**
+	 * @param sharedCache if not null, the rendered output of views with an output cache key is stored in and served from this cache
+	 */
+	public void setSharedCache(SharedTemplateCache sharedCache) {
+		this.sharedCache = sharedCache;
+	}
+
+	public String getOutputKeyPrefix() {
+		return outputKeyPrefix;
+	}
+
+	/**
+	 * @param outputKeyPrefix prepended to the keys of rendered output in the shared cache, which should change whenever templates change
+	 */
+	public void setOutputKeyPrefix(String outputKeyPrefix) {
+		this.outputKeyPrefix = outputKeyPrefix;
+	}
+
 	@Override
 	public void resolve(Request req, Response resp, FreemarkerView viewResult) {
 		String view = viewResult.getView();
+		String outputKey = outputKey(viewResult);
 		try {
+			String cachedOutput = outputKey == null ? null : getCachedOutput(outputKey);
+			if (cachedOutput != null) {
+				BaseView.applyToResponse(viewResult, resp);
+				write(resp, cachedOutput);
+				return;
+			}
+
 			Model model = Model.combine(globalModel, req.getAllData(), viewResult.getModel());
 			Template template = configuration.getTemplate(view);
 			BaseView.applyToResponse(viewResult, resp);
-			template.process(model, new OutputStreamWriter(resp.getOutputStream()));
+			LazyTemplateHashModel dataModel = new LazyTemplateHashModel(model, configuration.getObjectWrapper());
+			if (outputKey == null) {
+				template.process(dataModel, new OutputStreamWriter(resp.getOutputStream()));
+			} else {
+				StringWriter output = new StringWriter();
+				template.process(dataModel, output);
+				putCachedOutput(outputKey, output.toString(), viewResult.getOutputCacheTtlMillis());
+				write(resp, output.toString());
+			}
 		} catch (IOException | TemplateException e) {
 			throw new ViewResolutionException(e, "Failed to render Freemarker template '%s': %s", view, e.getMessage());
 		}
 	}
 
+	private String getCachedOutput(String outputKey) {
+		try {
+			return sharedCache.get(outputKey);
+		} catch (RuntimeException e) {
+			log.warn(String.format("Failed to read '%s' from shared template cache, rendering locally: %s", outputKey, e.getMessage()), e);
+			return null;
+		}
+	}
+
+	private void putCachedOutput(String outputKey, String output, long ttlMillis) {
+		try {
+			sharedCache.put(outputKey, output, ttlMillis);
+		} catch (RuntimeException e) {
+			log.warn(String.format("Failed to write '%s' to shared template cache: %s", outputKey, e.getMessage()), e);
+		}
+	}
+
+	private void write(Response resp, String output) throws IOException {
+		Writer writer = new OutputStreamWriter(resp.getOutputStream());
+		writer.write(output);
+		writer.flush();
+	}
+
+	private String outputKey(FreemarkerView viewResult) {
+		String outputCacheKey = viewResult.getOutputCacheKey();
+		return sharedCache == null || outputCacheKey == null ? null : outputKeyPrefix + viewResult.getView() + ":" + outputCacheKey;
+	}
+
 	@Override
 	public String toString() {
 		return this.getClass().getSimpleName();
@@ -0,0 +1,73 @@
+/*
+ * This file is a part of thundr-contrib-freemarker, a software library from Atomic Leopard.
+ *
+ * Copyright (C) 2016 Atomic Leopard Pty Ltd, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.freemarker;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link SharedTemplateCache} held in process. This does not share anything between instances, but is useful
+ * as an output cache for a single instance.
+ */
+public class InMemorySharedTemplateCache implements SharedTemplateCache {
+	private final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<>();
+
+	@Override
+	public String get(String key) {
+		Entry entry = cache.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (currentTimeMillis() >= entry.expiresAt) {
+			cache.remove(key, entry);
+			return null;
+		}
+		return entry.value;
+	}
+
+	@Override
+	public void put(String key, String value, long ttlMillis) {
+		long now = currentTimeMillis();
+		long expiresAt = ttlMillis <= 0 || now > Long.MAX_VALUE - ttlMillis ? Long.MAX_VALUE : now + ttlMillis;
+		cache.put(key, new Entry(value, expiresAt));
+	}
+
+	@Override
+	public void remove(String key) {
+		cache.remove(key);
+	}
+
+	protected long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s (%s entries)", this.getClass().getSimpleName(), cache.size());
+	}
+
+	private static class Entry {
+		private final String value;
+		private final long expiresAt;
+
+		private Entry(String value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
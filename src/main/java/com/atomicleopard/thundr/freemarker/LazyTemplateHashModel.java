@@ -0,0 +1,87 @@
+/*
+ * This file is a part of thundr-contrib-freemarker, a software library from Atomic Leopard.
+ *
+ * Copyright (C) 2016 Atomic Leopard Pty Ltd, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.freemarker;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import freemarker.template.ObjectWrapper;
+import freemarker.template.SimpleCollection;
+import freemarker.template.TemplateCollectionModel;
+import freemarker.template.TemplateHashModelEx;
+import freemarker.template.TemplateModel;
+import freemarker.template.TemplateModelException;
+
+/**
+ * The root data model for a single render. Values are wrapped only when a template references them, {@link LazyValue}s
+ * are evaluated at that point, and the result is retained for the remainder of the render.
+ */
+class LazyTemplateHashModel implements TemplateHashModelEx {
+	private final Map<String, Object> model;
+	private final ObjectWrapper objectWrapper;
+	private final Map<String, TemplateModel> resolved = new HashMap<>();
+
+	LazyTemplateHashModel(Map<String, Object> model, ObjectWrapper objectWrapper) {
+		this.model = model;
+		this.objectWrapper = objectWrapper;
+	}
+
+	@Override
+	public TemplateModel get(String key) throws TemplateModelException {
+		if (resolved.containsKey(key)) {
+			return resolved.get(key);
+		}
+		Object value = model.get(key);
+		if (value instanceof LazyValue) {
+			try {
+				value = ((LazyValue<?>) value).get();
+			} catch (RuntimeException e) {
+				throw new TemplateModelException(String.format("Failed to evaluate lazy model value '%s': %s", key, e.getMessage()), e);
+			}
+		}
+		TemplateModel templateModel = objectWrapper.wrap(value);
+		resolved.put(key, templateModel);
+		return templateModel;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return model.isEmpty();
+	}
+
+	@Override
+	public int size() {
+		return model.size();
+	}
+
+	@Override
+	public TemplateCollectionModel keys() {
+		return new SimpleCollection(new ArrayList<>(model.keySet()), objectWrapper);
+	}
+
+	@Override
+	public TemplateCollectionModel values() throws TemplateModelException {
+		List<TemplateModel> values = new ArrayList<>();
+		for (String key : model.keySet()) {
+			values.add(get(key));
+		}
+		return new SimpleCollection(values, objectWrapper);
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * This file is a part of thundr-contrib-freemarker, a software library from Atomic Leopard.
+ *
+ * Copyright (C) 2016 Atomic Leopard Pty Ltd, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.freemarker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A model value which is only evaluated when a template references it. Put these into the {@link com.threewks.thundr.view.GlobalModel}
+ * (or any view model) for values that are expensive to compute, like this:
+ * 
+ * <pre>
+ * <code>
+ * globalModel.put("navigation", LazyValue.perRequest(new ValueSupplier&lt;Navigation&gt;() {
+ * 	public Navigation get() {
+ * 		return navigationService.load();
+ * 	}
+ * }));
+ * </code>
+ * </pre>
+ * 
+ * A value is evaluated at most once per render. Values created with {@link #withTtl(ValueSupplier, long, TimeUnit)} are additionally
+ * memoized across requests until the given time to live has elapsed.
+ *
+ * @param <T> the type of the underlying value
+ */
+public class LazyValue<T> {
+	private final ValueSupplier<T> supplier;
+	private final long ttlMillis;
+	private volatile Memo<T> memo;
+
+	protected LazyValue(ValueSupplier<T> supplier, long ttlMillis) {
+		this.supplier = supplier;
+		this.ttlMillis = ttlMillis;
+	}
+
+	/**
+	 * @return a {@link LazyValue} which is evaluated once for each request which references it
+	 */
+	public static <T> LazyValue<T> perRequest(ValueSupplier<T> supplier) {
+		return new LazyValue<T>(supplier, 0);
+	}
+
+	/**
+	 * @return a {@link LazyValue} which is evaluated when first referenced and then reused across requests until the ttl has elapsed
+	 * @throws IllegalArgumentException if the ttl is less than one millisecond, use {@link #perRequest(ValueSupplier)} instead
+	 */
+	public static <T> LazyValue<T> withTtl(ValueSupplier<T> supplier, long ttl, TimeUnit unit) {
+		long ttlMillis = unit.toMillis(ttl);
+		if (ttlMillis <= 0) {
+			throw new IllegalArgumentException(String.format("A LazyValue ttl must be at least one millisecond, but was %s %s", ttl, unit));
+		}
+		return new LazyValue<T>(supplier, ttlMillis);
+	}
+
+	public T get() {
+		if (ttlMillis <= 0) {
+			return supplier.get();
+		}
+		Memo<T> current = memo;
+		if (current != null && currentTimeMillis() < current.expiresAt) {
+			return current.value;
+		}
+		synchronized (this) {
+			long now = currentTimeMillis();
+			current = memo;
+			if (current == null || now >= current.expiresAt) {
+				// clamp rather than overflow for very long ttls
+				long expiresAt = now > Long.MAX_VALUE - ttlMillis ? Long.MAX_VALUE : now + ttlMillis;
+				current = new Memo<T>(supplier.get(), expiresAt);
+				memo = current;
+			}
+			return current.value;
+		}
+	}
+
+	/**
+	 * Discards any memoized value, so that it is re-evaluated the next time it is referenced.
+	 */
+	public synchronized void invalidate() {
+		memo = null;
+	}
+
+	protected long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	@Override
+	public String toString() {
+		return ttlMillis <= 0 ? "LazyValue (per request)" : String.format("LazyValue (ttl %sms)", ttlMillis);
+	}
+
+	/**
+	 * A memoized value and its expiry, held together so that readers never see one without the other.
+	 */
+	private static class Memo<T> {
+		private final T value;
+		private final long expiresAt;
+
+		private Memo(T value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
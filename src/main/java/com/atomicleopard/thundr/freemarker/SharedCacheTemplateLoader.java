@@ -0,0 +1,251 @@
+/*
+ * This file is a part of thundr-contrib-freemarker, a software library from Atomic Leopard.
+ *
+ * Copyright (C) 2016 Atomic Leopard Pty Ltd, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.freemarker;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang3.StringUtils;
+
+import freemarker.cache.TemplateLoader;
+import freemarker.log.Logger;
+
+/**
+ * A {@link TemplateLoader} which shares template sources through a {@link SharedTemplateCache}. A template is read from the
+ * delegate loader only when no other instance has already published it, after which it is served from the shared cache.
+ * 
+ * Freemarker's parsed {@link freemarker.template.Template} is not serializable, so it is the decoded source and its
+ * last modified time which are shared. Parsing remains local, and is cached in process by the {@link freemarker.template.Configuration}
+ * as normal. What this saves is reading template sources from the delegate, which matters when that is slow (such as
+ * a remote or webapp loader); for classpath templates the saving is small, and the main benefit of the shared cache is
+ * its rendered output (see {@link FreemarkerViewResolver}).
+ * 
+ * Each name is looked up in the shared cache at most once per instance. The result, including a template which could
+ * not be found, is then kept in process, so Freemarker's periodic update checks and its lookups of locale variants
+ * (such as <code>view_en_AU.ftl</code>) do not make further round trips to the shared store.
+ * 
+ * Shared sources are decoded using the encoding given at construction. When a template is requested in a different
+ * encoding (for example because of <code>&lt;#ftl encoding=...&gt;</code> or a locale specific encoding) it is read from the
+ * delegate loader instead, or if the delegate does not have it, the shared source is used as is.
+ * 
+ * Entries are keyed by template name, and once published are not checked against the delegate again. Deployments
+ * which change templates must use a different key prefix (for example, one including the application version), which
+ * {@link FreemarkerModule} reads from the <code>freemarkerSharedCacheKeyPrefix</code> configuration property. The module
+ * does not share template sources at all if that property is not set.
+ * 
+ * Failures reading from or writing to the shared cache are logged and the template is loaded from the delegate loader.
+ */
+public class SharedCacheTemplateLoader implements TemplateLoader {
+	public static final String DEFAULT_KEY_PREFIX = "freemarker-source:";
+	private static final Object NOT_FOUND = new Object();
+	private static final Logger log = Logger.getLogger("com.atomicleopard.thundr.freemarker");
+	private final TemplateLoader delegate;
+	private final SharedTemplateCache sharedCache;
+	private final String encoding;
+	private final String keyPrefix;
+	private final ConcurrentMap<String, Object> localSources = new ConcurrentHashMap<>();
+
+	public SharedCacheTemplateLoader(TemplateLoader delegate, SharedTemplateCache sharedCache, String encoding) {
+		this(delegate, sharedCache, encoding, DEFAULT_KEY_PREFIX);
+	}
+
+	public SharedCacheTemplateLoader(TemplateLoader delegate, SharedTemplateCache sharedCache, String encoding, String keyPrefix) {
+		this.delegate = delegate;
+		this.sharedCache = sharedCache;
+		this.encoding = encoding;
+		this.keyPrefix = keyPrefix;
+	}
+
+	public TemplateLoader getDelegate() {
+		return delegate;
+	}
+
+	public SharedTemplateCache getSharedCache() {
+		return sharedCache;
+	}
+
+	public String getKeyPrefix() {
+		return keyPrefix;
+	}
+
+	@Override
+	public Object findTemplateSource(String name) throws IOException {
+		Object local = localSources.get(name);
+		if (local == null) {
+			CachedTemplateSource source = loadTemplateSource(name);
+			local = source == null ? NOT_FOUND : source;
+			localSources.put(name, local);
+		}
+		return local == NOT_FOUND ? null : local;
+	}
+
+	private CachedTemplateSource loadTemplateSource(String name) throws IOException {
+		String key = keyPrefix + name;
+		String entry = getSharedEntry(key);
+		if (entry != null) {
+			CachedTemplateSource source = CachedTemplateSource.fromEntry(name, entry);
+			if (source != null) {
+				return source;
+			}
+		}
+
+		Object delegateSource = delegate.findTemplateSource(name);
+		if (delegateSource == null) {
+			return null;
+		}
+		try {
+			long lastModified = delegate.getLastModified(delegateSource);
+			String content = read(delegate.getReader(delegateSource, encoding));
+			CachedTemplateSource source = new CachedTemplateSource(name, lastModified, content);
+			putSharedEntry(key, source.toEntry());
+			return source;
+		} finally {
+			delegate.closeTemplateSource(delegateSource);
+		}
+	}
+
+	@Override
+	public long getLastModified(Object templateSource) {
+		return ((CachedTemplateSource) templateSource).lastModified;
+	}
+
+	@Override
+	public Reader getReader(Object templateSource, String encoding) throws IOException {
+		CachedTemplateSource source = (CachedTemplateSource) templateSource;
+		if (isSameEncoding(this.encoding, encoding)) {
+			return new StringReader(source.content);
+		}
+		Object delegateSource = delegate.findTemplateSource(source.name);
+		if (delegateSource == null) {
+			log.warn(String.format("Template '%s' is not available locally to read in encoding %s, using the shared source decoded as %s", source.name, encoding, this.encoding));
+			return new StringReader(source.content);
+		}
+		try {
+			return new StringReader(read(delegate.getReader(delegateSource, encoding)));
+		} finally {
+			delegate.closeTemplateSource(delegateSource);
+		}
+	}
+
+	@Override
+	public void closeTemplateSource(Object templateSource) throws IOException {
+	}
+
+	private String getSharedEntry(String key) {
+		try {
+			return sharedCache.get(key);
+		} catch (RuntimeException e) {
+			log.warn(String.format("Failed to read '%s' from shared template cache, loading the template locally: %s", key, e.getMessage()), e);
+			return null;
+		}
+	}
+
+	private void putSharedEntry(String key, String entry) {
+		try {
+			sharedCache.put(key, entry, 0);
+		} catch (RuntimeException e) {
+			log.warn(String.format("Failed to write '%s' to shared template cache: %s", key, e.getMessage()), e);
+		}
+	}
+
+	private static boolean isSameEncoding(String encoding, String other) {
+		if (StringUtils.equalsIgnoreCase(encoding, other)) {
+			return true;
+		}
+		try {
+			return encoding != null && other != null && Charset.forName(encoding).equals(Charset.forName(other));
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	private static String read(Reader reader) throws IOException {
+		try {
+			StringWriter writer = new StringWriter();
+			char[] buffer = new char[4096];
+			int read;
+			while ((read = reader.read(buffer)) != -1) {
+				writer.write(buffer, 0, read);
+			}
+			return writer.toString();
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s (%s)", this.getClass().getSimpleName(), delegate);
+	}
+
+	/**
+	 * Stored in the shared cache as the last modified time and the template content, separated by a newline.
+	 */
+	static class CachedTemplateSource {
+		private final String name;
+		private final long lastModified;
+		private final String content;
+
+		CachedTemplateSource(String name, long lastModified, String content) {
+			this.name = name;
+			this.lastModified = lastModified;
+			this.content = content;
+		}
+
+		String toEntry() {
+			return lastModified + "\n" + content;
+		}
+
+		static CachedTemplateSource fromEntry(String name, String entry) {
+			int separator = entry.indexOf('\n');
+			String lastModified = separator < 0 ? null : entry.substring(0, separator);
+			if (!StringUtils.isNumeric(StringUtils.removeStart(lastModified, "-"))) {
+				return null;
+			}
+			try {
+				return new CachedTemplateSource(name, Long.parseLong(lastModified), entry.substring(separator + 1));
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			return name.hashCode() + 31 * (int) (lastModified ^ (lastModified >>> 32));
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof CachedTemplateSource)) {
+				return false;
+			}
+			CachedTemplateSource other = (CachedTemplateSource) obj;
+			return name.equals(other.name) && lastModified == other.lastModified && content.equals(other.content);
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+}
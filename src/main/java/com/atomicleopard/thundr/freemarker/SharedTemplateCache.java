@@ -0,0 +1,41 @@
+/*
+ * This file is a part of thundr-contrib-freemarker, a software library from Atomic Leopard.
+ *
+ * Copyright (C) 2016 Atomic Leopard Pty Ltd, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.freemarker;
+
+/**
+ * A second level cache shared between application instances. When one is available in the injection context,
+ * {@link FreemarkerModule} uses it to share template sources (see {@link SharedCacheTemplateLoader}) and the rendered
+ * output of views which declare an output cache key (see {@link FreemarkerView#withOutputCacheKey(String, long, java.util.concurrent.TimeUnit)}).
+ * 
+ * Implementations are expected to be backed by an external store (such as memcache or redis) so that newly started
+ * instances are warm. {@link InMemorySharedTemplateCache} and {@link FileSharedTemplateCache} are provided for a single instance
+ * and for testing respectively.
+ */
+public interface SharedTemplateCache {
+	/**
+	 * @return the value stored for the given key, or null if there is none
+	 */
+	public String get(String key);
+
+	/**
+	 * @param ttlMillis how long the entry may be retained for, or zero or less if it does not expire
+	 */
+	public void put(String key, String value, long ttlMillis);
+
+	public void remove(String key);
+}
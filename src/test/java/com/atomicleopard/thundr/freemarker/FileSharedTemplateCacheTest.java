@@ -0,0 +1,90 @@
+/*
+ * This file is a part of thundr-contrib-freemarker, a software library from Atomic Leopard.
+ *
+ * Copyright (C) 2016 Atomic Leopard Pty Ltd, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.freemarker;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileSharedTemplateCacheTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File directory;
+	private FileSharedTemplateCache cache;
+
+	@Before
+	public void before() {
+		directory = new File(folder.getRoot(), "cache");
+		cache = new FileSharedTemplateCache(directory);
+	}
+
+	@Test
+	public void shouldCreateDirectory() {
+		assertThat(directory.isDirectory(), is(true));
+		assertThat(cache.getDirectory(), is(directory));
+	}
+
+	@Test
+	public void shouldPutGetAndRemoveEntries() {
+		assertThat(cache.get("freemarker-source:/ftl/view.ftl"), is(nullValue()));
+
+		cache.put("freemarker-source:/ftl/view.ftl", "value é", 0);
+		assertThat(cache.get("freemarker-source:/ftl/view.ftl"), is("value é"));
+
+		cache.put("freemarker-source:/ftl/view.ftl", "value2", 0);
+		assertThat(cache.get("freemarker-source:/ftl/view.ftl"), is("value2"));
+
+		cache.remove("freemarker-source:/ftl/view.ftl");
+		assertThat(cache.get("freemarker-source:/ftl/view.ftl"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldExpireEntriesAfterTtl() {
+		final long[] now = { 1000 };
+		cache = new FileSharedTemplateCache(directory) {
+			@Override
+			protected long currentTimeMillis() {
+				return now[0];
+			}
+		};
+		cache.put("expiring", "value", 100);
+		cache.put("permanent", "value", 0);
+
+		now[0] = 1099;
+		assertThat(cache.get("expiring"), is("value"));
+		now[0] = 1100;
+		assertThat(cache.get("expiring"), is(nullValue()));
+		assertThat(cache.get("permanent"), is("value"));
+		assertThat(directory.list().length, is(1));
+	}
+
+	@Test
+	public void shouldShareEntriesBetweenInstancesUsingTheSameDirectory() {
+		cache.put("key", "value", 0);
+
+		assertThat(new FileSharedTemplateCache(directory).get("key"), is("value"));
+		assertThat(directory.list().length, is(1));
+	}
+}
@@ -67,4 +67,91 @@ public class FreemarkerModuleTest {
 		assertThat(viewResolver, is(notNullValue()));
 
 	}
+
+	@Test
+	public void shouldShareTemplatesAndOutputThroughSharedTemplateCacheIfAvailableAtStart() {
+		SharedTemplateCache sharedCache = new InMemorySharedTemplateCache();
+		injectionContext.inject(viewResolverRegistry).as(ViewResolverRegistry.class);
+		injectionContext.inject(globalModel).as(GlobalModel.class);
+		injectionContext.inject(sharedCache).as(SharedTemplateCache.class);
+		injectionContext.inject("v1:").named("freemarkerSharedCacheKeyPrefix").as(String.class);
+		injectionContext.inject(module.createConfiguration(injectionContext)).as(Configuration.class);
+
+		module.start(injectionContext);
+
+		Configuration configuration = injectionContext.get(Configuration.class);
+		assertThat(configuration.getTemplateLoader(), is(instanceOf(SharedCacheTemplateLoader.class)));
+		assertThat(((SharedCacheTemplateLoader) configuration.getTemplateLoader()).getSharedCache(), is(sharedCache));
+		FreemarkerViewResolver viewResolver = (FreemarkerViewResolver) viewResolverRegistry.findViewResolver(new FreemarkerView("view"));
+		assertThat(viewResolver.getSharedCache(), is(sharedCache));
+	}
+
+	@Test
+	public void shouldNotUseSharedTemplateCacheIfNoneAvailableAtStart() {
+		injectionContext.inject(viewResolverRegistry).as(ViewResolverRegistry.class);
+		injectionContext.inject(globalModel).as(GlobalModel.class);
+		injectionContext.inject(module.createConfiguration(injectionContext)).as(Configuration.class);
+
+		module.start(injectionContext);
+
+		Configuration configuration = injectionContext.get(Configuration.class);
+		assertThat(configuration.getTemplateLoader(), is(not(instanceOf(SharedCacheTemplateLoader.class))));
+		FreemarkerViewResolver viewResolver = (FreemarkerViewResolver) viewResolverRegistry.findViewResolver(new FreemarkerView("view"));
+		assertThat(viewResolver.getSharedCache(), is(nullValue()));
+	}
+
+	@Test
+	public void shouldOnlyShareOutputWhenNoKeyPrefixIsConfigured() {
+		SharedTemplateCache sharedCache = new InMemorySharedTemplateCache();
+		injectionContext.inject(viewResolverRegistry).as(ViewResolverRegistry.class);
+		injectionContext.inject(globalModel).as(GlobalModel.class);
+		injectionContext.inject(sharedCache).as(SharedTemplateCache.class);
+		injectionContext.inject(module.createConfiguration(injectionContext)).as(Configuration.class);
+
+		module.start(injectionContext);
+
+		Configuration configuration = injectionContext.get(Configuration.class);
+		assertThat(configuration.getTemplateLoader(), is(not(instanceOf(SharedCacheTemplateLoader.class))));
+		FreemarkerViewResolver viewResolver = (FreemarkerViewResolver) viewResolverRegistry.findViewResolver(new FreemarkerView("view"));
+		assertThat(viewResolver.getSharedCache(), is(sharedCache));
+		assertThat(viewResolver.getOutputKeyPrefix(), is("freemarker-output:"));
+	}
+
+	@Test
+	public void shouldUseConfiguredKeyPrefixForSharedTemplateCache() {
+		injectionContext.inject(viewResolverRegistry).as(ViewResolverRegistry.class);
+		injectionContext.inject(globalModel).as(GlobalModel.class);
+		injectionContext.inject(new InMemorySharedTemplateCache()).as(SharedTemplateCache.class);
+		injectionContext.inject("v2:").named("freemarkerSharedCacheKeyPrefix").as(String.class);
+		injectionContext.inject(module.createConfiguration(injectionContext)).as(Configuration.class);
+
+		module.start(injectionContext);
+
+		SharedCacheTemplateLoader loader = (SharedCacheTemplateLoader) injectionContext.get(Configuration.class).getTemplateLoader();
+		assertThat(loader.getKeyPrefix(), is("v2:freemarker-source:"));
+		FreemarkerViewResolver viewResolver = (FreemarkerViewResolver) viewResolverRegistry.findViewResolver(new FreemarkerView("view"));
+		assertThat(viewResolver.getOutputKeyPrefix(), is("v2:freemarker-output:"));
+	}
+
+	@Test
+	public void shouldRespectOverriddenViewResolverWhenUsingSharedTemplateCache() {
+		final FreemarkerViewResolver customResolver = new FreemarkerViewResolver(null, globalModel);
+		FreemarkerModule module = new FreemarkerModule() {
+			@Override
+			protected FreemarkerViewResolver createViewResolver(GlobalModel globalModel, Configuration configuration) {
+				return customResolver;
+			}
+		};
+		SharedTemplateCache sharedCache = new InMemorySharedTemplateCache();
+		injectionContext.inject(viewResolverRegistry).as(ViewResolverRegistry.class);
+		injectionContext.inject(globalModel).as(GlobalModel.class);
+		injectionContext.inject(sharedCache).as(SharedTemplateCache.class);
+		injectionContext.inject(module.createConfiguration(injectionContext)).as(Configuration.class);
+
+		module.start(injectionContext);
+
+		ViewResolver<FreemarkerView> viewResolver = viewResolverRegistry.findViewResolver(new FreemarkerView("view"));
+		assertThat(viewResolver, is((Object) customResolver));
+		assertThat(customResolver.getSharedCache(), is(sharedCache));
+	}
 }
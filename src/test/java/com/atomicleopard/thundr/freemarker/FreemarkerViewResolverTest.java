@@ -23,6 +23,8 @@ import static org.junit.Assert.assertThat;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -187,6 +189,145 @@ public class FreemarkerViewResolverTest {
 		assertThat(resp.getContentTypeString(), is("text/html"));
 	}
 
+	@Test
+	public void shouldNotEvaluateLazyGlobalModelValuesWhichAreNotReferenced() {
+		CountingSupplier supplier = new CountingSupplier();
+		globalModel.put("global", "global");
+		globalModel.put("request", "request");
+		globalModel.put("unused", LazyValue.perRequest(supplier));
+
+		FreemarkerView view = new FreemarkerView("/variable.ftl", model("local", "local"));
+		viewResolver.resolve(req, resp, view);
+
+		assertThat(resp.getBodyAsString(), is("Template with global and request and local"));
+		assertThat(supplier.count.get(), is(0));
+	}
+
+	@Test
+	public void shouldEvaluatePerRequestLazyGlobalModelValuesOncePerRender() {
+		CountingSupplier supplier = new CountingSupplier();
+		globalModel.put("lazy", LazyValue.perRequest(supplier));
+
+		viewResolver.resolve(req, resp, new FreemarkerView("/lazy.ftl"));
+		assertThat(resp.getBodyAsString(), is("value-1 and value-1"));
+
+		MockResponse secondResp = new MockResponse();
+		viewResolver.resolve(req, secondResp, new FreemarkerView("/lazy.ftl"));
+		assertThat(secondResp.getBodyAsString(), is("value-2 and value-2"));
+		assertThat(supplier.count.get(), is(2));
+	}
+
+	@Test
+	public void shouldReuseLazyGlobalModelValuesWithTtlAcrossRenders() {
+		CountingSupplier supplier = new CountingSupplier();
+		globalModel.put("lazy", LazyValue.withTtl(supplier, 1, TimeUnit.HOURS));
+
+		viewResolver.resolve(req, resp, new FreemarkerView("/lazy.ftl"));
+		MockResponse secondResp = new MockResponse();
+		viewResolver.resolve(req, secondResp, new FreemarkerView("/lazy.ftl"));
+
+		assertThat(resp.getBodyAsString(), is("value-1 and value-1"));
+		assertThat(secondResp.getBodyAsString(), is("value-1 and value-1"));
+		assertThat(supplier.count.get(), is(1));
+	}
+
+	@Test
+	public void shouldAllowLocalModelToOverrideLazyGlobalModelValue() {
+		CountingSupplier supplier = new CountingSupplier();
+		globalModel.put("lazy", LazyValue.perRequest(supplier));
+
+		viewResolver.resolve(req, resp, new FreemarkerView("/lazy.ftl", model("lazy", "local")));
+
+		assertThat(resp.getBodyAsString(), is("local and local"));
+		assertThat(supplier.count.get(), is(0));
+	}
+
+	@Test
+	public void shouldStoreAndServeRenderedOutputFromSharedCacheWhenViewHasOutputCacheKey() {
+		SharedTemplateCache sharedCache = new InMemorySharedTemplateCache();
+		FreemarkerViewResolver viewResolver = new FreemarkerViewResolver(configuration, globalModel, sharedCache);
+
+		viewResolver.resolve(req, resp, new FreemarkerView("/basic.ftl", model("message", "First")).withOutputCacheKey("key", 1, TimeUnit.MINUTES));
+		assertThat(resp.getBodyAsString(), is("First\n"));
+		assertThat(sharedCache.get("freemarker-output:/basic.ftl:key"), is("First\n"));
+
+		MockResponse secondResp = new MockResponse();
+		viewResolver.resolve(req, secondResp, new FreemarkerView("/basic.ftl", model("message", "Second")).withOutputCacheKey("key", 1, TimeUnit.MINUTES));
+		assertThat(secondResp.getBodyAsString(), is("First\n"));
+		assertThat(secondResp.getStatusCode(), is(StatusCode.OK));
+		assertThat(secondResp.getContentTypeString(), is("text/html"));
+	}
+
+	@Test
+	public void shouldStoreRenderedOutputWithTtlAndOutputKeyPrefix() {
+		final long[] now = { 1000 };
+		SharedTemplateCache sharedCache = new InMemorySharedTemplateCache() {
+			@Override
+			protected long currentTimeMillis() {
+				return now[0];
+			}
+		};
+		FreemarkerViewResolver viewResolver = new FreemarkerViewResolver(configuration, globalModel, sharedCache);
+		viewResolver.setOutputKeyPrefix("v2:freemarker-output:");
+
+		viewResolver.resolve(req, resp, new FreemarkerView("/basic.ftl", model("message", "First")).withOutputCacheKey("key", 100, TimeUnit.MILLISECONDS));
+		assertThat(sharedCache.get("v2:freemarker-output:/basic.ftl:key"), is("First\n"));
+		assertThat(sharedCache.get("freemarker-output:/basic.ftl:key"), is(nullValue()));
+
+		now[0] = 1100;
+		MockResponse secondResp = new MockResponse();
+		viewResolver.resolve(req, secondResp, new FreemarkerView("/basic.ftl", model("message", "Second")).withOutputCacheKey("key", 100, TimeUnit.MILLISECONDS));
+		assertThat(secondResp.getBodyAsString(), is("Second\n"));
+	}
+
+	@Test
+	public void shouldRenderLocallyWhenSharedCacheFails() {
+		FreemarkerViewResolver viewResolver = new FreemarkerViewResolver(configuration, globalModel, new SharedCacheTemplateLoaderTest.FailingSharedTemplateCache());
+
+		viewResolver.resolve(req, resp, new FreemarkerView("/basic.ftl", model("message", "First")).withOutputCacheKey("key", 1, TimeUnit.MINUTES));
+
+		assertThat(resp.getBodyAsString(), is("First\n"));
+		assertThat(resp.getStatusCode(), is(StatusCode.OK));
+	}
+
+	@Test
+	public void shouldNotUseSharedCacheWhenViewHasNoOutputCacheKey() {
+		SharedTemplateCache sharedCache = new InMemorySharedTemplateCache();
+		FreemarkerViewResolver viewResolver = new FreemarkerViewResolver(configuration, globalModel, sharedCache);
+
+		viewResolver.resolve(req, resp, new FreemarkerView("/basic.ftl", model("message", "First")));
+		MockResponse secondResp = new MockResponse();
+		viewResolver.resolve(req, secondResp, new FreemarkerView("/basic.ftl", model("message", "Second")));
+
+		assertThat(resp.getBodyAsString(), is("First\n"));
+		assertThat(secondResp.getBodyAsString(), is("Second\n"));
+	}
+
+	@Test
+	public void shouldIgnoreOutputCacheKeyWhenNoSharedCache() {
+		viewResolver.resolve(req, resp, new FreemarkerView("/basic.ftl", model("message", "First")).withOutputCacheKey("key", 1, TimeUnit.MINUTES));
+		MockResponse secondResp = new MockResponse();
+		viewResolver.resolve(req, secondResp, new FreemarkerView("/basic.ftl", model("message", "Second")).withOutputCacheKey("key", 1, TimeUnit.MINUTES));
+
+		assertThat(resp.getBodyAsString(), is("First\n"));
+		assertThat(secondResp.getBodyAsString(), is("Second\n"));
+		assertThat(viewResolver.getSharedCache(), is(nullValue()));
+	}
+
+	@Test
+	public void shouldThrowViewResolutionExceptionWhenLazyGlobalModelValueFails() {
+		thrown.expect(ViewResolutionException.class);
+		thrown.expectMessage("Failed to render Freemarker template '/lazy.ftl': Failed to evaluate lazy model value 'lazy': Expected failure");
+
+		globalModel.put("lazy", LazyValue.perRequest(new ValueSupplier<String>() {
+			@Override
+			public String get() {
+				throw new IllegalStateException("Expected failure");
+			}
+		}));
+		viewResolver.resolve(req, resp, new FreemarkerView("/lazy.ftl"));
+	}
+
 	@Test
 	public void shouldThrowViewResolutionExceptionWhenFailedToApplyTemplate() throws IOException {
 		thrown.expect(ViewResolutionException.class);
@@ -236,6 +377,15 @@ public class FreemarkerViewResolverTest {
 		return Expressive.map(keyValues);
 	}
 
+	private static class CountingSupplier implements ValueSupplier<String> {
+		private AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public String get() {
+			return "value-" + count.incrementAndGet();
+		}
+	}
+
 	public static class Animal {
 		private boolean protectd;
 		private String name;
@@ -22,6 +22,7 @@ import static org.junit.Assert.assertThat;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 
@@ -91,4 +92,19 @@ public class FreemarkerViewTest {
 		assertThat(view.getHeader("header"), is((Object)"value1"));
 		assertThat(view.getCookie("cookie"), is(notNullValue()));
 	}
+
+	@Test
+	public void shouldRetainOutputCacheKey() {
+		FreemarkerView view = new FreemarkerView("/ftl/view.ftl");
+		assertThat(view.getOutputCacheKey(), is(nullValue()));
+
+		assertThat(view.withOutputCacheKey("key", 2, TimeUnit.SECONDS), is(sameInstance(view)));
+		assertThat(view.getOutputCacheKey(), is("key"));
+		assertThat(view.getOutputCacheTtlMillis(), is(2000l));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectNonPositiveOutputCacheTtl() {
+		new FreemarkerView("/ftl/view.ftl").withOutputCacheKey("key", 0, TimeUnit.SECONDS);
+	}
 }
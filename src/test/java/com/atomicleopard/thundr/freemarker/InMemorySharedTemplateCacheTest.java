@@ -0,0 +1,68 @@
+/*
+ * This file is a part of thundr-contrib-freemarker, a software library from Atomic Leopard.
+ *
+ * Copyright (C) 2016 Atomic Leopard Pty Ltd, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.freemarker;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class InMemorySharedTemplateCacheTest {
+	private InMemorySharedTemplateCache cache = new InMemorySharedTemplateCache();
+
+	@Test
+	public void shouldPutGetAndRemoveEntries() {
+		assertThat(cache.get("key"), is(nullValue()));
+
+		cache.put("key", "value", 0);
+		assertThat(cache.get("key"), is("value"));
+
+		cache.put("key", "value2", 0);
+		assertThat(cache.get("key"), is("value2"));
+
+		cache.remove("key");
+		assertThat(cache.get("key"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldExpireEntriesAfterTtl() {
+		final long[] now = { 1000 };
+		cache = new InMemorySharedTemplateCache() {
+			@Override
+			protected long currentTimeMillis() {
+				return now[0];
+			}
+		};
+		cache.put("expiring", "value", 100);
+		cache.put("permanent", "value", 0);
+		cache.put("long", "value", Long.MAX_VALUE);
+
+		now[0] = 1099;
+		assertThat(cache.get("expiring"), is("value"));
+		now[0] = 1100;
+		assertThat(cache.get("expiring"), is(nullValue()));
+		assertThat(cache.get("permanent"), is("value"));
+		assertThat(cache.get("long"), is("value"));
+	}
+
+	@Test
+	public void shouldDescribeSizeInToString() {
+		cache.put("key", "value", 0);
+		assertThat(cache.toString(), is("InMemorySharedTemplateCache (1 entries)"));
+	}
+}
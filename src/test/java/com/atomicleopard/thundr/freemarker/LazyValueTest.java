@@ -0,0 +1,128 @@
+/*
+ * This file is a part of thundr-contrib-freemarker, a software library from Atomic Leopard.
+ *
+ * Copyright (C) 2016 Atomic Leopard Pty Ltd, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.freemarker;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class LazyValueTest {
+	private AtomicInteger count = new AtomicInteger();
+	private ValueSupplier<Integer> supplier = new ValueSupplier<Integer>() {
+		@Override
+		public Integer get() {
+			return count.incrementAndGet();
+		}
+	};
+
+	@Test
+	public void shouldNotEvaluateSupplierUntilRequested() {
+		LazyValue.perRequest(supplier);
+		LazyValue.withTtl(supplier, 1, TimeUnit.MINUTES);
+		assertThat(count.get(), is(0));
+	}
+
+	@Test
+	public void shouldEvaluateSupplierEachTimeForPerRequestValue() {
+		LazyValue<Integer> value = LazyValue.perRequest(supplier);
+		assertThat(value.get(), is(1));
+		assertThat(value.get(), is(2));
+	}
+
+	@Test
+	public void shouldMemoizeValueUntilTtlElapses() {
+		final long[] now = { 1000 };
+		LazyValue<Integer> value = new LazyValue<Integer>(supplier, 100) {
+			@Override
+			protected long currentTimeMillis() {
+				return now[0];
+			}
+		};
+
+		assertThat(value.get(), is(1));
+		now[0] = 1099;
+		assertThat(value.get(), is(1));
+		now[0] = 1100;
+		assertThat(value.get(), is(2));
+	}
+
+	@Test
+	public void shouldReevaluateAfterInvalidate() {
+		LazyValue<Integer> value = LazyValue.withTtl(supplier, 1, TimeUnit.HOURS);
+		assertThat(value.get(), is(1));
+		value.invalidate();
+		assertThat(value.get(), is(2));
+	}
+
+	@Test
+	public void shouldDescribeTtlInToString() {
+		assertThat(LazyValue.perRequest(supplier).toString(), is("LazyValue (per request)"));
+		assertThat(LazyValue.withTtl(supplier, 2, TimeUnit.SECONDS).toString(), is("LazyValue (ttl 2000ms)"));
+	}
+
+	@Test
+	public void shouldNotReturnNullWhenInvalidatedConcurrently() throws InterruptedException {
+		final LazyValue<Integer> value = LazyValue.withTtl(supplier, 1, TimeUnit.HOURS);
+		final AtomicInteger nulls = new AtomicInteger();
+		Thread reader = new Thread() {
+			@Override
+			public void run() {
+				for (int i = 0; i < 100000; i++) {
+					if (value.get() == null) {
+						nulls.incrementAndGet();
+					}
+				}
+			}
+		};
+		reader.start();
+		for (int i = 0; i < 1000; i++) {
+			value.invalidate();
+		}
+		reader.join();
+		assertThat(nulls.get(), is(0));
+	}
+
+	@Test
+	public void shouldNotOverflowExpiryForVeryLongTtl() {
+		LazyValue<Integer> value = LazyValue.withTtl(supplier, Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		assertThat(value.get(), is(1));
+		assertThat(value.get(), is(1));
+	}
+
+	@Test
+	public void shouldRejectNonPositiveTtl() {
+		for (long ttl : new long[] { 0, -1 }) {
+			try {
+				LazyValue.withTtl(supplier, ttl, TimeUnit.SECONDS);
+				fail("Expected IllegalArgumentException for ttl " + ttl);
+			} catch (IllegalArgumentException e) {
+				assertThat(e.getMessage(), is(String.format("A LazyValue ttl must be at least one millisecond, but was %s SECONDS", ttl)));
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectTtlShorterThanOneMillisecond() {
+		LazyValue.withTtl(supplier, 999, TimeUnit.MICROSECONDS);
+	}
+}
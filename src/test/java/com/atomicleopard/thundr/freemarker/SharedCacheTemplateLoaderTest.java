@@ -0,0 +1,219 @@
+/*
+ * This file is a part of thundr-contrib-freemarker, a software library from Atomic Leopard.
+ *
+ * Copyright (C) 2016 Atomic Leopard Pty Ltd, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.freemarker;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import freemarker.cache.StringTemplateLoader;
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+
+public class SharedCacheTemplateLoaderTest {
+	private StringTemplateLoader delegate = new StringTemplateLoader();
+	private SharedTemplateCache sharedCache = new InMemorySharedTemplateCache();
+	private SharedCacheTemplateLoader loader = new SharedCacheTemplateLoader(delegate, sharedCache, "UTF-8");
+
+	@Test
+	public void shouldLoadFromDelegateAndPublishToSharedCache() throws IOException {
+		delegate.putTemplate("view.ftl", "Hello ${name}", 1234l);
+
+		Object source = loader.findTemplateSource("view.ftl");
+
+		assertThat(source, is(notNullValue()));
+		assertThat(loader.getLastModified(source), is(1234l));
+		assertThat(read(loader.getReader(source, "UTF-8")), is("Hello ${name}"));
+		assertThat(sharedCache.get("freemarker-source:view.ftl"), is("1234\nHello ${name}"));
+	}
+
+	@Test
+	public void shouldLoadFromSharedCacheWithoutDelegate() throws IOException {
+		sharedCache.put("freemarker-source:view.ftl", "5678\nShared ${name}\nsecond line", 0);
+
+		Object source = loader.findTemplateSource("view.ftl");
+
+		assertThat(loader.getLastModified(source), is(5678l));
+		assertThat(read(loader.getReader(source, "UTF-8")), is("Shared ${name}\nsecond line"));
+	}
+
+	@Test
+	public void shouldFallBackToDelegateWhenSharedEntryIsInvalid() throws IOException {
+		delegate.putTemplate("view.ftl", "Hello", 1234l);
+		sharedCache.put("freemarker-source:view.ftl", "invalid", 0);
+
+		Object source = loader.findTemplateSource("view.ftl");
+
+		assertThat(read(loader.getReader(source, "UTF-8")), is("Hello"));
+		assertThat(sharedCache.get("freemarker-source:view.ftl"), is("1234\nHello"));
+	}
+
+	@Test
+	public void shouldReturnNullWhenTemplateDoesNotExist() throws IOException {
+		assertThat(loader.findTemplateSource("non-existant.ftl"), is(nullValue()));
+		assertThat(sharedCache.get("freemarker-source:non-existant.ftl"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldUseKeyPrefix() throws IOException {
+		delegate.putTemplate("view.ftl", "Hello", 1234l);
+		loader = new SharedCacheTemplateLoader(delegate, sharedCache, "UTF-8", "v2:");
+
+		loader.findTemplateSource("view.ftl");
+
+		assertThat(sharedCache.get("v2:view.ftl"), is("1234\nHello"));
+	}
+
+	@Test
+	public void shouldRenderTemplatesPublishedByAnotherInstance() throws Exception {
+		delegate.putTemplate("view.ftl", "Hello ${name}", 1234l);
+		new SharedCacheTemplateLoader(delegate, sharedCache, "UTF-8").findTemplateSource("view.ftl");
+
+		Configuration configuration = new Configuration(Configuration.VERSION_2_3_24);
+		configuration.setDefaultEncoding("UTF-8");
+		configuration.setTemplateLoader(new SharedCacheTemplateLoader(new StringTemplateLoader(), sharedCache, "UTF-8"));
+		Template template = configuration.getTemplate("view.ftl");
+		StringWriter output = new StringWriter();
+		template.process(Collections.singletonMap("name", "World"), output);
+
+		assertThat(output.toString(), is("Hello World"));
+	}
+
+	@Test
+	public void shouldPickUpChangedTemplateWhenKeyPrefixChanges() throws IOException {
+		delegate.putTemplate("view.ftl", "Version 1", 1234l);
+		new SharedCacheTemplateLoader(delegate, sharedCache, "UTF-8", "v1:").findTemplateSource("view.ftl");
+
+		delegate.putTemplate("view.ftl", "Version 2", 5678l);
+		Object sameVersion = new SharedCacheTemplateLoader(delegate, sharedCache, "UTF-8", "v1:").findTemplateSource("view.ftl");
+		Object newVersion = new SharedCacheTemplateLoader(delegate, sharedCache, "UTF-8", "v2:").findTemplateSource("view.ftl");
+
+		assertThat(read(loader.getReader(sameVersion, "UTF-8")), is("Version 1"));
+		assertThat(read(loader.getReader(newVersion, "UTF-8")), is("Version 2"));
+		assertThat(loader.getLastModified(newVersion), is(5678l));
+	}
+
+	@Test
+	public void shouldReadFromDelegateWhenRequestedEncodingDiffers() throws IOException {
+		delegate.putTemplate("view.ftl", "Shared", 1234l);
+		Object source = loader.findTemplateSource("view.ftl");
+		delegate.putTemplate("view.ftl", "Delegate", 1234l);
+
+		assertThat(read(loader.getReader(source, "UTF-8")), is("Shared"));
+		assertThat(read(loader.getReader(source, "utf8")), is("Shared"));
+		assertThat(read(loader.getReader(source, "ISO-8859-1")), is("Delegate"));
+	}
+
+	@Test
+	public void shouldUseSharedSourceWhenRequestedEncodingDiffersAndDelegateDoesNotHaveTemplate() throws IOException {
+		sharedCache.put("freemarker-source:view.ftl", "1234\nShared", 0);
+
+		Object source = loader.findTemplateSource("view.ftl");
+
+		assertThat(read(loader.getReader(source, "ISO-8859-1")), is("Shared"));
+	}
+
+	@Test
+	public void shouldRenderTemplatePublishedByAnotherInstanceInADifferentEncoding() throws Exception {
+		sharedCache.put("freemarker-source:view.ftl", "1234\nHello ${name}", 0);
+
+		Configuration configuration = new Configuration(Configuration.VERSION_2_3_24);
+		configuration.setDefaultEncoding("ISO-8859-1");
+		configuration.setTemplateLoader(loader);
+		StringWriter output = new StringWriter();
+		configuration.getTemplate("view.ftl").process(Collections.singletonMap("name", "World"), output);
+
+		assertThat(output.toString(), is("Hello World"));
+	}
+
+	@Test
+	public void shouldFallBackToDelegateWhenSharedEntryLastModifiedIsTooLarge() throws IOException {
+		delegate.putTemplate("view.ftl", "Hello", 1234l);
+		sharedCache.put("freemarker-source:view.ftl", "99999999999999999999\nCorrupt", 0);
+
+		Object source = loader.findTemplateSource("view.ftl");
+
+		assertThat(read(loader.getReader(source, "UTF-8")), is("Hello"));
+	}
+
+	@Test
+	public void shouldLookUpEachTemplateInSharedCacheOnlyOnce() throws IOException {
+		final AtomicInteger gets = new AtomicInteger();
+		loader = new SharedCacheTemplateLoader(delegate, new InMemorySharedTemplateCache() {
+			@Override
+			public String get(String key) {
+				gets.incrementAndGet();
+				return super.get(key);
+			}
+		}, "UTF-8");
+		delegate.putTemplate("view.ftl", "Hello", 1234l);
+
+		Object first = loader.findTemplateSource("view.ftl");
+		Object second = loader.findTemplateSource("view.ftl");
+		assertThat(second, is(first));
+		assertThat(loader.findTemplateSource("view_en_AU.ftl"), is(nullValue()));
+		assertThat(loader.findTemplateSource("view_en_AU.ftl"), is(nullValue()));
+
+		assertThat(gets.get(), is(2));
+	}
+
+	@Test
+	public void shouldLoadFromDelegateWhenSharedCacheFails() throws IOException {
+		delegate.putTemplate("view.ftl", "Hello", 1234l);
+		loader = new SharedCacheTemplateLoader(delegate, new FailingSharedTemplateCache(), "UTF-8");
+
+		Object source = loader.findTemplateSource("view.ftl");
+
+		assertThat(read(loader.getReader(source, "UTF-8")), is("Hello"));
+		assertThat(loader.getLastModified(source), is(1234l));
+	}
+
+	private static String read(Reader reader) throws IOException {
+		StringWriter writer = new StringWriter();
+		char[] buffer = new char[1024];
+		int read;
+		while ((read = reader.read(buffer)) != -1) {
+			writer.write(buffer, 0, read);
+		}
+		return writer.toString();
+	}
+
+	static class FailingSharedTemplateCache implements SharedTemplateCache {
+		@Override
+		public String get(String key) {
+			throw new SharedTemplateCacheException(null, "Expected failure getting %s", key);
+		}
+
+		@Override
+		public void put(String key, String value, long ttlMillis) {
+			throw new SharedTemplateCacheException(null, "Expected failure putting %s", key);
+		}
+
+		@Override
+		public void remove(String key) {
+			throw new SharedTemplateCacheException(null, "Expected failure removing %s", key);
+		}
+	}
+}
@@ -0,0 +1 @@
+${lazy} and ${lazy}
\ No newline at end of file